@@ -29,6 +29,59 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all {
+                // Benchmarks are slow, only run them with: ./gradlew testDebugUnitTest -Pbenchmark
+                if (!project.hasProperty("benchmark")) {
+                    it.exclude("**/*Benchmark.class")
+                } else {
+                    // Latency gate of AttackProviderConcurrencyTest, override with -PmaxP99Ms=<ms>
+                    it.systemProperty("benchmark.maxP99Ms", project.findProperty("maxP99Ms") ?: "250")
+                }
+                it.systemProperty(
+                    "benchmark.outputDir",
+                    layout.buildDirectory.dir("benchmark-results").get().asFile.absolutePath
+                )
+            }
+        }
+    }
+}
+
+// Test assets for FilesUtilBenchmark, in the same sizes as written and read from internal storage.
+// Generated instead of checked in, and only added to the debug variant when running with -Pbenchmark.
+abstract class GenerateBenchmarkAssets : DefaultTask() {
+    @get:Input
+    abstract val sizes: ListProperty<Int>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        val dir = outputDir.get().asFile.resolve("bench")
+        dir.mkdirs()
+        for (size in sizes.get()) {
+            // Lines of 63 characters plus a newline, like FilesUtilBenchmark.makeContent()
+            val chars = CharArray(size) { i -> if (i % 64 == 63) '\n' else 'A' }
+            dir.resolve("file_$size.txt").writeText(String(chars))
+        }
+    }
+}
+
+if (project.hasProperty("benchmark")) {
+    val generateBenchmarkAssets = tasks.register<GenerateBenchmarkAssets>("generateBenchmarkAssets") {
+        sizes.set(listOf(64, 4 * 1024, 64 * 1024, 1024 * 1024))
+        outputDir.set(layout.buildDirectory.dir("generated/benchmarkAssets"))
+    }
+    androidComponents {
+        onVariants(selector().withBuildType("debug")) { variant ->
+            variant.sources.assets?.addGeneratedSourceDirectory(
+                generateBenchmarkAssets, GenerateBenchmarkAssets::outputDir
+            )
+        }
+    }
 }
 
 dependencies {
@@ -38,6 +91,9 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
+    testImplementation(libs.ext.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
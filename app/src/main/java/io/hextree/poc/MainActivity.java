@@ -16,6 +16,7 @@ import androidx.core.view.WindowInsetsCompat;
 import java.io.File;
 
 import io.hextree.poc.utils.AttackProvider;
+import io.hextree.poc.utils.FileProviderUtils;
 import io.hextree.poc.utils.FilesUtil;
 import io.hextree.poc.utils.IntentUtils;
 
@@ -48,9 +49,13 @@ public class MainActivity extends AppCompatActivity {
         // FilesUtil.copyFileFromAssetToInternal(this, "example.txt", "example.txt");
         // FilesUtil.writeFile(this, "example2.txt", "dynamically writing file");
 
+        // ---- Changing the AttackProvider payload at runtime (see assets/attackprovider.properties)
+        // FilesUtil.writeFile(this, "attackprovider.properties", "display_name=../../../other.txt\ncontent=<h1>New Content</h1>\n");
+
         // ---- Working with FileProvider (ContentProvider)
         // Uri attackUri = FileProvider.getUriForFile(this, "io.hextree.attackprovider", new File(getFilesDir(), "example.txt"));
         // Uri fileUri = FileProvider.getUriForFile(this, "io.hextree.fileprovider", new File(getFilesDir(), "example.txt"));
+        // Intent shareIntent = FileProviderUtils.grantDirectory(this, ".", new Intent().setClassName("<package_name>", "<activity>"));
 
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
@@ -5,25 +5,79 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.Trace;
 import android.provider.OpenableColumns;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A ContentProvider that acts as a helper for exposing a virtual file.
  * <p>
  * This provider demonstrates how to supply file metadata via {@link #query(Uri, String[], String, String[], String)}
- * and file content via {@link #openFile(Uri, String)}. The file metadata is hard-coded,
- * as is the file content, making this implementation useful for testing or demonstration purposes.
+ * and file content via {@link #openFile(Uri, String)}. The file metadata and content are
+ * defined by a {@link ProviderProfile}, loaded from {@code attackprovider.properties} in the assets
+ * folder or internal storage. Changes to the internal storage copy are picked up at runtime,
+ * so the payload can be modified without rebuilding or restarting the app.
+ * </p>
+ * <p>
+ * Clients in other processes can also fetch the metadata and content with a single binder call to
+ * {@link #call(String, String, Bundle)}, see {@link ProviderUtils#readPayload}.
+ * </p>
+ * <p>
+ * To keep app cold start fast, {@link #onCreate()} does no work. The profile is loaded lazily
+ * on the first {@code query} or {@code openFile}. Provider init, the first query and the first
+ * openFile are wrapped in {@link Trace} sections, so their cost shows up in system traces.
  * </p>
  */
 public class AttackProvider extends ContentProvider {
 
+    /**
+     * The {@link #call(String, String, Bundle)} method returning the file metadata and content.
+     */
+    public static final String METHOD_GET_FILE = "getFile";
+    public static final String EXTRA_DISPLAY_NAME = "display_name";
+    public static final String EXTRA_SIZE = "size";
+    public static final String EXTRA_CONTENT = "content";
+    public static final String EXTRA_SHARED_MEMORY = "shared_memory";
+    public static final String EXTRA_PROVIDER_PID = "provider_pid";
+
+    /**
+     * Content up to this size is returned inline in the {@link #call} result, larger content in
+     * {@link android.os.SharedMemory}. Stays well below the 1MB binder transaction buffer, which is
+     * shared by all transactions in flight of the process.
+     */
+    static final int MAX_INLINE_CONTENT = 128 * 1024;
+
+    /**
+     * How long the {@link android.os.SharedMemory} of a replaced profile is kept open. A {@link #call}
+     * that is still returning the old profile writes the region into its binder reply after the
+     * method returned, and in-process clients map the provider's own instance.
+     */
+    static final long PROFILE_CLOSE_DELAY_MS = 30_000;
+
+    // Lazily initialized by getProfile(), replaced by the observer when the profile changes
+    private volatile ProviderProfile profile;
+    private final Object profileLock = new Object();
+
+    private final AtomicBoolean firstQuery = new AtomicBoolean(true);
+    private final AtomicBoolean firstOpenFile = new AtomicBoolean(true);
+
+    // Keep a reference, otherwise the observer is garbage collected and stops watching
+    private FileObserver profileObserver;
+
     /**
      * Default constructor.
      */
@@ -34,7 +88,7 @@ public class AttackProvider extends ContentProvider {
      * Handles query requests from clients.
      * <p>
      * This implementation returns a single-row {@link MatrixCursor} containing file metadata.
-     * The metadata includes a manipulated display name and a hardcoded file size.
+     * The metadata includes a manipulated display name and file size, taken from the current profile.
      * </p>
      *
      * @param uri           the URI to query.
@@ -52,22 +106,27 @@ public class AttackProvider extends ContentProvider {
                         String[] selectionArgs, String sortOrder) {
         Log.i("AttackProvider", "query(" + uri.toString() + ")");
 
-        MatrixCursor cursor = new MatrixCursor(new String[]{
-                OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE
-        });
-
-        // Modify the reported filename and file size here.
-        cursor.addRow(new Object[]{
-                "../../../filename.txt", 12345
-        });
+        boolean trace = firstQuery.compareAndSet(true, false);
+        if (trace) {
+            Trace.beginSection("AttackProvider.firstQuery");
+        }
+        try {
+            // Modify the reported filename and file size in attackprovider.properties.
+            MatrixCursor cursor = new MatrixCursor(ProviderProfile.COLUMNS, 1);
+            cursor.addRow(getProfile().getRow());
 
-        return cursor;
+            return cursor;
+        } finally {
+            if (trace) {
+                Trace.endSection();
+            }
+        }
     }
 
     /**
      * Opens a file associated with the given URI.
      * <p>
-     * This method creates a pipe, writes a hardcoded HTML content to the pipe's output stream
+     * This method creates a pipe, writes the content of the current profile to the pipe's output stream
      * in a separate thread, and returns the read end of the pipe. This allows clients to read
      * the file content as if it were a regular file.
      * </p>
@@ -81,14 +140,19 @@ public class AttackProvider extends ContentProvider {
     public ParcelFileDescriptor openFile(Uri uri, @NonNull String mode) throws FileNotFoundException {
         Log.i("AttackProvider", "openFile(" + uri.toString() + ")");
 
+        boolean trace = firstOpenFile.compareAndSet(true, false);
+        if (trace) {
+            Trace.beginSection("AttackProvider.firstOpenFile");
+        }
         try {
+            byte[] content = getProfile().getContent();
             ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
             ParcelFileDescriptor.AutoCloseOutputStream outputStream =
                     new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]);
 
             new Thread(() -> {
                 try {
-                    outputStream.write("<h1>File Content</h1>".getBytes());
+                    outputStream.write(content);
                     outputStream.close();
                 } catch (IOException e) {
                     Log.e("AttackProvider", "Error in pipeToParcelFileDescriptor", e);
@@ -98,24 +162,128 @@ public class AttackProvider extends ContentProvider {
             return pipe[0];
         } catch (IOException e) {
             throw new FileNotFoundException("Could not open pipe for: " + uri);
+        } finally {
+            if (trace) {
+                Trace.endSection();
+            }
         }
     }
 
+    /**
+     * Handles provider-specific method calls from clients.
+     * <p>
+     * For {@link #METHOD_GET_FILE} this returns the file metadata and content of the current profile
+     * in a single binder round-trip, which is much cheaper than {@link #query} followed by
+     * {@link #openFile} for small payloads. The content is returned as a byte array in
+     * {@link #EXTRA_CONTENT} if it fits in {@link #MAX_INLINE_CONTENT}, otherwise as a read-only
+     * {@link android.os.SharedMemory} in {@link #EXTRA_SHARED_MEMORY}. The region belongs to the
+     * provider, {@link #EXTRA_PROVIDER_PID} lets clients tell whether they received their own copy of it.
+     * </p>
+     *
+     * @param method the method name, only {@link #METHOD_GET_FILE} is supported.
+     * @param arg    an optional argument, not used.
+     * @param extras optional extras, not used.
+     * @return a {@link Bundle} with {@link #EXTRA_DISPLAY_NAME}, {@link #EXTRA_SIZE} and the content,
+     *         or {@code null} for unknown methods.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        Log.i("AttackProvider", "call(" + method + ", " + arg + ")");
+        if (!METHOD_GET_FILE.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+
+        ProviderProfile profile = getProfile();
+        Bundle result = new Bundle();
+        result.putString(EXTRA_DISPLAY_NAME, profile.getDisplayName());
+        result.putLong(EXTRA_SIZE, profile.getSize());
+        result.putInt(EXTRA_PROVIDER_PID, Process.myPid());
+        if (profile.getContent().length <= MAX_INLINE_CONTENT) {
+            result.putByteArray(EXTRA_CONTENT, profile.getContent());
+        } else if (profile.getSharedMemory() != null) {
+            // Owned by the profile, clients only unmap it. Without content the client falls back to openFile()
+            result.putParcelable(EXTRA_SHARED_MEMORY, profile.getSharedMemory());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current profile, loading it and starting to watch for changes on first use.
+     *
+     * @return the current {@link ProviderProfile}.
+     */
+    private ProviderProfile getProfile() {
+        ProviderProfile result = profile;
+        if (result == null) {
+            synchronized (profileLock) {
+                result = profile;
+                if (result == null) {
+                    Trace.beginSection("AttackProvider.init");
+                    try {
+                        // Watch before loading, so a change during the load still triggers a reload
+                        watchProfile(getContext().getFilesDir());
+                        result = ProviderProfile.load(getContext());
+                        profile = result;
+                    } finally {
+                        Trace.endSection();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Initializes the provider.
      * <p>
-     * This method is called when the provider is started. It logs the initialization
-     * and returns {@code true} to indicate that the provider was successfully loaded.
+     * This method is called during application startup, before any activity is created, so it
+     * only logs the initialization. The {@link ProviderProfile} is loaded lazily on first use.
+     * Returns {@code true} to indicate that the provider was successfully loaded.
      * </p>
      *
      * @return {@code true} if the provider was successfully loaded; {@code false} otherwise.
      */
     @Override
     public boolean onCreate() {
+        Trace.beginSection("AttackProvider.onCreate");
         Log.i("AttackProvider", "onCreate()");
+        Trace.endSection();
         return true;
     }
 
+    /**
+     * Reloads the profile whenever {@code attackprovider.properties} in the given directory
+     * is written, moved into place or deleted.
+     * <p>
+     * Reloads hold the same lock as the initial load in {@link #getProfile()}, so a reload triggered
+     * while the provider is initializing runs after it and is not overwritten by a stale profile.
+     * </p>
+     *
+     * @param dir the directory containing the profile override.
+     */
+    private void watchProfile(File dir) {
+        int mask = FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE;
+        profileObserver = new FileObserver(dir, mask) {
+            @Override
+            public void onEvent(int event, String path) {
+                if (ProviderProfile.FILE_NAME.equals(path)) {
+                    synchronized (profileLock) {
+                        ProviderProfile previous = profile;
+                        ProviderProfile reloaded = ProviderProfile.load(getContext());
+                        profile = reloaded;
+                        if (previous != null && previous != ProviderProfile.DEFAULT) {
+                            // Not right away, a call() may still be returning its region
+                            new Handler(Looper.getMainLooper()).postDelayed(previous::close, PROFILE_CLOSE_DELAY_MS);
+                        }
+                        Log.i("AttackProvider", "Reloaded profile: " + reloaded.getDisplayName());
+                    }
+                }
+            }
+        };
+        profileObserver.startWatching();
+    }
+
     /**
      * Deletes data at the given URI.
      * <p>
@@ -0,0 +1,369 @@
+package io.hextree.poc.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Utility class for tracking changes of files dumped from content providers across runs.
+ * <p>
+ * Where {@link ProviderUtils#dumpFile} only logs the content of a file, this class streams each
+ * {@code content://} file through SHA-256, split into content-defined chunks by a rolling hash,
+ * and compares the result with the previous run. Only chunks that were not seen before are stored,
+ * in a content-addressed chunk store in {@code getFilesDir()/dumps/chunks}, next to the hash index
+ * {@code dumps/index.txt}. Because chunk boundaries depend on the content and not on the offset,
+ * inserting or removing data only changes the chunks around the modification.
+ * </p>
+ * <p>
+ * Files are processed in parallel. Chunks no longer referenced by the index are removed after
+ * each run, so the store only holds the latest version of every file. Runs are serialized, as they
+ * share the index. All methods block, don't call them from the main thread.
+ * </p>
+ */
+public class DumpDiff {
+
+    /**
+     * The directory in internal storage containing the index and chunk store.
+     */
+    public static final String DUMP_DIR = "dumps";
+
+    // Chunks are cut where the rolling hash matches the mask, giving ~8KB chunks on average
+    private static final int MIN_CHUNK = 2 * 1024;
+    private static final int MAX_CHUNK = 64 * 1024;
+    private static final long CHUNK_MASK = 8 * 1024 - 1;
+
+    // Random values for the "gear" rolling hash, fixed seed so chunk boundaries are stable across runs
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x6865787472656565L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * The state of a file compared to the previous run.
+     */
+    public enum Status {
+        NEW, UNCHANGED, CHANGED, FAILED
+    }
+
+    /**
+     * A content-defined chunk of a file.
+     */
+    public static class Chunk {
+        public final String sha256;
+        public final long offset;
+        public final int length;
+
+        Chunk(String sha256, long offset, int length) {
+            this.sha256 = sha256;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The hashes of a file and its differences to the previous run.
+     */
+    public static class Result {
+        public final Uri uri;
+        public final Status status;
+        public final String sha256;
+        public final long size;
+        public final List<Chunk> chunks;
+        /** The chunks that did not exist in the previous version of the file. */
+        public final List<Chunk> changedChunks;
+
+        Result(Uri uri, Status status, String sha256, long size, List<Chunk> chunks, List<Chunk> changedChunks) {
+            this.uri = uri;
+            this.status = status;
+            this.sha256 = sha256;
+            this.size = size;
+            this.chunks = chunks;
+            this.changedChunks = changedChunks;
+        }
+    }
+
+    /**
+     * Hashes the given files in parallel, compares them with the previous run and updates the index.
+     * <p>
+     * For each file the status and the changed chunks are logged. Files that could not be read,
+     * including providers throwing from {@code openFile()}, are reported as {@link Status#FAILED}
+     * and keep their previous index entry. Concurrent calls wait for each other.
+     * </p>
+     *
+     * @param context     the context used to access the content resolver and internal storage.
+     * @param contentUris the content URIs of the files to hash.
+     * @return a {@link Result} for every URI, in the same order.
+     */
+    public static synchronized List<Result> hashAndDiff(Context context, List<Uri> contentUris) {
+        File dumpDir = new File(context.getFilesDir(), DUMP_DIR);
+        File chunkDir = new File(dumpDir, "chunks");
+        if (!chunkDir.exists()) {
+            chunkDir.mkdirs();
+        }
+        File indexFile = new File(dumpDir, "index.txt");
+        Map<String, Result> index = readIndex(indexFile);
+
+        int threads = Math.max(1, Math.min(contentUris.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Uri uri : contentUris) {
+            Result previous = index.get(uri.toString());
+            futures.add(executor.submit(() -> hashFile(context, uri, previous, chunkDir)));
+        }
+
+        List<Result> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // One bad URI must not lose the results of all other files
+                    Log.d("Diff", " [!] " + e.getCause() + " reading " + contentUris.get(i));
+                    results.add(failed(contentUris.get(i)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Result result : results) {
+            if (result.status != Status.FAILED) {
+                index.put(result.uri.toString(), result);
+            }
+            log(result);
+        }
+        writeIndex(indexFile, index);
+        pruneChunks(chunkDir, index);
+        return results;
+    }
+
+    /**
+     * Deletes all chunks that are not referenced by the index, e.g. parts of older file versions.
+     */
+    private static void pruneChunks(File chunkDir, Map<String, Result> index) {
+        Set<String> referenced = new HashSet<>();
+        for (Result result : index.values()) {
+            for (Chunk chunk : result.chunks) {
+                referenced.add(chunk.sha256);
+            }
+        }
+        File[] files = chunkDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            // Also removes leftover temporary files, no other run is writing chunks at this point
+            if (!referenced.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private static Result hashFile(Context context, Uri uri, Result previous, File chunkDir) {
+        MessageDigest fileDigest = newSha256();
+        MessageDigest chunkDigest = newSha256();
+        ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(MAX_CHUNK);
+        List<Chunk> chunks = new ArrayList<>();
+
+        long offset = 0;
+        long hash = 0;
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
+                return failed(uri);
+            }
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                fileDigest.update(buffer, 0, read);
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+                    int chunkLength = chunkBytes.size() + i + 1 - from;
+                    if ((chunkLength >= MIN_CHUNK && (hash & CHUNK_MASK) == 0) || chunkLength >= MAX_CHUNK) {
+                        chunkBytes.write(buffer, from, i + 1 - from);
+                        chunks.add(finishChunk(chunkDigest, chunkBytes, offset, chunkDir));
+                        offset += chunkLength;
+                        from = i + 1;
+                        hash = 0;
+                    }
+                }
+                chunkBytes.write(buffer, from, read - from);
+            }
+            if (chunkBytes.size() > 0) {
+                int chunkLength = chunkBytes.size();
+                chunks.add(finishChunk(chunkDigest, chunkBytes, offset, chunkDir));
+                offset += chunkLength;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Providers commonly throw IllegalArgumentException or IllegalStateException for unknown URIs
+            Log.d("Diff", " [!] " + e.getClass().getSimpleName() + " reading " + uri);
+            return failed(uri);
+        }
+
+        String sha256 = toHex(fileDigest.digest());
+        if (previous == null) {
+            return new Result(uri, Status.NEW, sha256, offset, chunks, chunks);
+        }
+        if (previous.sha256.equals(sha256)) {
+            return new Result(uri, Status.UNCHANGED, sha256, offset, chunks, new ArrayList<>());
+        }
+
+        Set<String> previousChunks = new HashSet<>();
+        for (Chunk chunk : previous.chunks) {
+            previousChunks.add(chunk.sha256);
+        }
+        List<Chunk> changedChunks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (!previousChunks.contains(chunk.sha256)) {
+                changedChunks.add(chunk);
+            }
+        }
+        return new Result(uri, Status.CHANGED, sha256, offset, chunks, changedChunks);
+    }
+
+    /**
+     * Hashes the buffered chunk, stores it if it is not in the chunk store yet, and resets the buffer.
+     */
+    private static Chunk finishChunk(MessageDigest chunkDigest, ByteArrayOutputStream chunkBytes,
+                                     long offset, File chunkDir) throws IOException {
+        byte[] data = chunkBytes.toByteArray();
+        chunkBytes.reset();
+        String sha256 = toHex(chunkDigest.digest(data));
+
+        File chunkFile = new File(chunkDir, sha256);
+        if (!chunkFile.exists()) {
+            // Write to a temporary file first, another thread may store the same chunk concurrently
+            File tmpFile = File.createTempFile(sha256, ".tmp", chunkDir);
+            try (OutputStream outputStream = new FileOutputStream(tmpFile)) {
+                outputStream.write(data);
+            }
+            if (!tmpFile.renameTo(chunkFile)) {
+                tmpFile.delete();
+            }
+        }
+        return new Chunk(sha256, offset, data.length);
+    }
+
+    private static Result failed(Uri uri) {
+        return new Result(uri, Status.FAILED, null, 0, new ArrayList<>(), new ArrayList<>());
+    }
+
+    private static void log(Result result) {
+        Log.d("Diff", "--------------------------------");
+        Log.d("Diff", result.status + " " + result.uri);
+        if (result.status == Status.FAILED) {
+            return;
+        }
+        Log.d("Diff", " [*] sha256=" + result.sha256 + " size=" + result.size
+                + " chunks=" + result.chunks.size() + " changed=" + result.changedChunks.size());
+        if (result.status == Status.CHANGED) {
+            for (Chunk chunk : result.changedChunks) {
+                Log.d("Diff", " [*] changed offset=" + chunk.offset + " length=" + chunk.length
+                        + " sha256=" + chunk.sha256);
+            }
+        }
+    }
+
+    /**
+     * Reads the index. Each line contains: uri, file sha256, size and the chunks as sha256:length.
+     */
+    private static Map<String, Result> readIndex(File indexFile) {
+        Map<String, Result> index = new HashMap<>();
+        if (!indexFile.exists()) {
+            return index;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    continue;
+                }
+                List<Chunk> chunks = new ArrayList<>();
+                long offset = 0;
+                for (String entry : fields[3].split(",")) {
+                    int separator = entry.indexOf(':');
+                    if (separator > 0) {
+                        int length = Integer.parseInt(entry.substring(separator + 1));
+                        chunks.add(new Chunk(entry.substring(0, separator), offset, length));
+                        offset += length;
+                    }
+                }
+                Uri uri = Uri.parse(fields[0]);
+                index.put(fields[0], new Result(uri, Status.UNCHANGED, fields[1],
+                        Long.parseLong(fields[2]), chunks, new ArrayList<>()));
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.e("Diff", "Could not read " + indexFile + ", starting with an empty index", e);
+            index.clear();
+        }
+        return index;
+    }
+
+    private static void writeIndex(File indexFile, Map<String, Result> index) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Result> entry : index.entrySet()) {
+            Result result = entry.getValue();
+            sb.append(entry.getKey()).append('\t').append(result.sha256).append('\t').append(result.size).append('\t');
+            for (int i = 0; i < result.chunks.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                Chunk chunk = result.chunks.get(i);
+                sb.append(chunk.sha256).append(':').append(chunk.length);
+            }
+            sb.append('\n');
+        }
+        try (OutputStream outputStream = new FileOutputStream(indexFile)) {
+            outputStream.write(sb.toString().getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
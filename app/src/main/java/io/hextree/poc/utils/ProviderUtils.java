@@ -3,12 +3,18 @@ package io.hextree.poc.utils;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
 import android.util.Log;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 
 /**
  * Utility class for reading and dumping file or content provider data.
@@ -20,6 +26,142 @@ import java.io.InputStreamReader;
  */
 public class ProviderUtils {
 
+    /**
+     * The content of a file read with {@link #readPayload(Context, Uri)}, and how it was read.
+     */
+    public static class Payload {
+        /** The file content. */
+        public final byte[] data;
+        /** The reported display name, or {@code null} if it was not returned. */
+        public final String displayName;
+        /** The reported size, or -1 if it was not returned. */
+        public final long size;
+        /** The path used to read the file: "call", "call+shm" or "openFile". */
+        public final String method;
+        /** The measured latency of the path used to read the file, in nanoseconds. */
+        public final long latencyNanos;
+
+        Payload(byte[] data, String displayName, long size, String method, long latencyNanos) {
+            this.data = data;
+            this.displayName = displayName;
+            this.size = size;
+            this.method = method;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    /**
+     * Reads the content of a file from a content provider, using the fastest available path.
+     * <p>
+     * First the provider's {@code call()} fast path ({@link AttackProvider#METHOD_GET_FILE}) is tried,
+     * which returns metadata and content in a single binder round-trip, with large content in
+     * {@link SharedMemory}. If the provider doesn't support it, the method falls back to
+     * {@code openInputStream()}. The chosen path and its latency are logged and returned. The cost of
+     * a failed {@code call()} attempt is logged separately and not included in the returned latency.
+     * </p>
+     *
+     * @param context    the context used to access the content resolver.
+     * @param contentUri the content URI of the file to be read.
+     * @return the {@link Payload}, or {@code null} if the file could not be read.
+     */
+    public static Payload readPayload(Context context, Uri contentUri) {
+        long start = System.nanoTime();
+        Payload payload = readPayloadWithCall(context, contentUri, start);
+        if (payload == null) {
+            Log.d("Payload", "call() not available for " + contentUri
+                    + ", attempt took " + (System.nanoTime() - start) / 1000 + "us");
+            payload = readPayloadWithOpenFile(context, contentUri, System.nanoTime());
+        }
+        if (payload != null) {
+            Log.d("Payload", "Read " + payload.data.length + " bytes of " + contentUri
+                    + " with " + payload.method + " in " + payload.latencyNanos / 1000 + "us");
+        }
+        return payload;
+    }
+
+    private static Payload readPayloadWithCall(Context context, Uri contentUri, long start) {
+        Bundle result;
+        try {
+            result = context.getContentResolver().call(contentUri, AttackProvider.METHOD_GET_FILE, null, null);
+        } catch (IllegalArgumentException | UnsupportedOperationException | SecurityException e) {
+            // Unknown authority, method or no permission for call()
+            return null;
+        } catch (IllegalStateException e) {
+            // The provider failed to write its reply, e.g. its shared memory was already closed
+            Log.d("Payload", " [!] IllegalStateException in call()");
+            return null;
+        }
+        if (result == null) {
+            return null;
+        }
+
+        // Across processes the Bundle was parceled and the region is our own copy of the file descriptor.
+        // In the same process it is the provider's instance, which must not be closed.
+        boolean ownsRegion = result.getInt(AttackProvider.EXTRA_PROVIDER_PID, Process.myPid()) != Process.myPid();
+        return readPayloadFromBundle(result, ownsRegion, start);
+    }
+
+    /**
+     * Extracts the payload from the result of a {@link AttackProvider#METHOD_GET_FILE} call.
+     *
+     * @param result     the {@code call()} result.
+     * @param ownsRegion whether a received {@link SharedMemory} is a copy owned by the caller,
+     *                   and must be closed after reading it.
+     * @param start      the {@link System#nanoTime()} the call was started at.
+     * @return the {@link Payload}, or {@code null} if the result contains no content.
+     */
+    static Payload readPayloadFromBundle(Bundle result, boolean ownsRegion, long start) {
+        String displayName = result.getString(AttackProvider.EXTRA_DISPLAY_NAME);
+        long size = result.getLong(AttackProvider.EXTRA_SIZE, -1);
+        byte[] data = result.getByteArray(AttackProvider.EXTRA_CONTENT);
+        if (data != null) {
+            return new Payload(data, displayName, size, "call", System.nanoTime() - start);
+        }
+
+        SharedMemory sharedMemory = result.getParcelable(AttackProvider.EXTRA_SHARED_MEMORY);
+        if (sharedMemory == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = sharedMemory.mapReadOnly();
+            data = new byte[buffer.remaining()];
+            buffer.get(data);
+            SharedMemory.unmap(buffer);
+            return new Payload(data, displayName, size, "call+shm", System.nanoTime() - start);
+        } catch (ErrnoException e) {
+            Log.d("Payload", " [!] ErrnoException mapping shared memory");
+            return null;
+        } catch (IllegalStateException e) {
+            // The provider released the region because its profile was replaced
+            Log.d("Payload", " [!] Shared memory already closed");
+            return null;
+        } finally {
+            if (ownsRegion) {
+                sharedMemory.close();
+            }
+        }
+    }
+
+    private static Payload readPayloadWithOpenFile(Context context, Uri contentUri, long start) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(contentUri)) {
+            if (inputStream == null) {
+                return null;
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return new Payload(outputStream.toByteArray(), null, -1, "openFile", System.nanoTime() - start);
+        } catch (IOException e) {
+            Log.d("Payload", " [!] IOException");
+        } catch (SecurityException e) {
+            Log.d("Payload", " [!] SecurityException");
+        }
+        return null;
+    }
+
     /**
      * Reads and logs the content of a file at the specified content URI.
      * <p>
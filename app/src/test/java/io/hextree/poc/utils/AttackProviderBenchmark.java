@@ -0,0 +1,55 @@
+package io.hextree.poc.utils;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.io.InputStream;
+
+/**
+ * Benchmarks for {@link AttackProvider#query} and {@link AttackProvider#openFile} throughput,
+ * executed on the JVM with Robolectric.
+ * <p>
+ * Run with {@code ./gradlew testDebugUnitTest -Pbenchmark}, results are written to
+ * {@code app/build/benchmark-results/AttackProviderBenchmark.json}.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class AttackProviderBenchmark {
+
+    @Test
+    public void benchmarkAttackProvider() throws Exception {
+        AttackProvider provider = Robolectric.setupContentProvider(AttackProvider.class, "io.hextree.attackprovider");
+        Uri uri = Uri.parse("content://io.hextree.attackprovider/example.txt");
+
+        Benchmark benchmark = new Benchmark("AttackProviderBenchmark", 5, 20, 200);
+        benchmark.run("query", () -> {
+            try (Cursor cursor = provider.query(uri, null, null, null, null)) {
+                cursor.moveToFirst();
+                Benchmark.blackhole = cursor.getString(0);
+            }
+        });
+        benchmark.run("openFile", () -> {
+            // Includes draining the pipe, as a client would
+            ParcelFileDescriptor pfd = provider.openFile(uri, "r");
+            try (InputStream inputStream = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+                byte[] buffer = new byte[8192];
+                int total = 0;
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    total += read;
+                }
+                Benchmark.blackhole = total;
+            }
+        });
+        benchmark.writeJson();
+    }
+}
@@ -0,0 +1,125 @@
+package io.hextree.poc.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.SharedMemory;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link AttackProvider#call} fast path and
+ * {@link ProviderUtils#readPayload}, executed with Robolectric.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class AttackProviderCallTest {
+
+    private static final Uri URI = Uri.parse("content://io.hextree.attackprovider/example.txt");
+
+    private AttackProvider provider;
+
+    @Before
+    public void setUp() {
+        provider = Robolectric.setupContentProvider(AttackProvider.class, "io.hextree.attackprovider");
+    }
+
+    @Test
+    public void call_getFile_returnsInlineContent() {
+        Bundle result = provider.call(AttackProvider.METHOD_GET_FILE, null, null);
+
+        assertNotNull(result);
+        assertEquals("../../../filename.txt", result.getString(AttackProvider.EXTRA_DISPLAY_NAME));
+        assertEquals(12345, result.getLong(AttackProvider.EXTRA_SIZE));
+        assertArrayEquals("<h1>File Content</h1>".getBytes(), result.getByteArray(AttackProvider.EXTRA_CONTENT));
+    }
+
+    @Test
+    public void call_unknownMethod_returnsNull() {
+        assertNull(provider.call("unknown", null, null));
+    }
+
+    @Test
+    public void readPayload_usesCallFastPath() {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        ProviderUtils.Payload payload = ProviderUtils.readPayload(context, URI);
+
+        assertNotNull(payload);
+        assertEquals("call", payload.method);
+        assertEquals("../../../filename.txt", payload.displayName);
+        assertEquals(12345, payload.size);
+        assertArrayEquals("<h1>File Content</h1>".getBytes(), payload.data);
+        assertTrue(payload.latencyNanos > 0);
+    }
+
+    @Test
+    public void readPayload_sharedMemoryCanBeReadRepeatedly() {
+        Context context = ApplicationProvider.getApplicationContext();
+        char[] content = new char[AttackProvider.MAX_INLINE_CONTENT + 4096];
+        Arrays.fill(content, 'A');
+        // Written before the first call, the provider loads its profile lazily
+        FilesUtil.writeFile(context, ProviderProfile.FILE_NAME, "content=" + new String(content) + "\n");
+
+        for (int i = 0; i < 2; i++) {
+            ProviderUtils.Payload payload = ProviderUtils.readPayload(context, URI);
+
+            assertNotNull(payload);
+            assertEquals("call+shm", payload.method);
+            assertEquals(content.length, payload.size);
+            assertEquals(content.length, payload.data.length);
+            assertArrayEquals(new String(content).getBytes(), payload.data);
+        }
+    }
+
+    @Test
+    public void readPayloadFromBundle_closesParceledRegion() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        char[] content = new char[AttackProvider.MAX_INLINE_CONTENT + 4096];
+        Arrays.fill(content, 'B');
+        FilesUtil.writeFile(context, ProviderProfile.FILE_NAME, "content=" + new String(content) + "\n");
+
+        // Parcel the result like a binder reply to another process, giving the client its own copy
+        Bundle result = provider.call(AttackProvider.METHOD_GET_FILE, null, null);
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(result);
+            parcel.setDataPosition(0);
+            Bundle received = parcel.readBundle(getClass().getClassLoader());
+            SharedMemory receivedRegion = received.getParcelable(AttackProvider.EXTRA_SHARED_MEMORY);
+            assertNotSame(result.getParcelable(AttackProvider.EXTRA_SHARED_MEMORY), receivedRegion);
+
+            ProviderUtils.Payload payload = ProviderUtils.readPayloadFromBundle(received, true, System.nanoTime());
+
+            assertNotNull(payload);
+            assertEquals("call+shm", payload.method);
+            assertArrayEquals(new String(content).getBytes(), payload.data);
+            try {
+                receivedRegion.mapReadOnly();
+                fail("the received copy must be closed after reading");
+            } catch (IllegalStateException expected) {
+                // closed
+            }
+        } finally {
+            parcel.recycle();
+        }
+
+        // The provider's own region is still open and served to later calls
+        ProviderUtils.Payload again = ProviderUtils.readPayload(context, URI);
+        assertNotNull(again);
+        assertEquals("call+shm", again.method);
+        assertArrayEquals(new String(content).getBytes(), again.data);
+    }
+}
@@ -0,0 +1,201 @@
+package io.hextree.poc.utils;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local (JVM) test harness for {@link AttackProvider}, executed with Robolectric.
+ * <p>
+ * Calls {@code query} and {@code openFile} from many threads concurrently, drains every pipe
+ * and checks the returned bytes, and that no writer threads or file descriptors are leaked.
+ * Latency percentiles are always logged, but only asserted if the {@code benchmark.maxP99Ms} system
+ * property is set, which the Gradle build does when running with {@code -Pbenchmark}. Use it to
+ * validate performance changes to the provider off-device.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class AttackProviderConcurrencyTest {
+
+    private static final Uri URI = Uri.parse("content://io.hextree.attackprovider/example.txt");
+    private static final byte[] EXPECTED_CONTENT = "<h1>File Content</h1>".getBytes();
+
+    private static final int THREADS = 16;
+    private static final int CALLS_PER_THREAD = 200;
+    // Optional latency gate, wall-clock bounds are too flaky for regular test runs
+    private static final long MAX_P99_MS = Long.getLong("benchmark.maxP99Ms", -1);
+
+    private AttackProvider provider;
+
+    @Before
+    public void setUp() {
+        provider = Robolectric.setupContentProvider(AttackProvider.class, "io.hextree.attackprovider");
+
+        // The provider initializes lazily on first use and starts its FileObserver thread. Warm it up,
+        // so neither the init latency nor the observer's thread and fd end up in the measurements.
+        provider.query(URI, null, null, null, null).close();
+    }
+
+    @Test
+    public void concurrentQuery_returnsMetadata() throws Exception {
+        long[] latencies = hammer(() -> {
+            try (Cursor cursor = provider.query(URI, null, null, null, null)) {
+                assertNotNull(cursor);
+                assertEquals(1, cursor.getCount());
+                assertTrue(cursor.moveToFirst());
+                assertEquals("../../../filename.txt",
+                        cursor.getString(cursor.getColumnIndexOrThrow(OpenableColumns.DISPLAY_NAME)));
+                assertEquals(12345, cursor.getLong(cursor.getColumnIndexOrThrow(OpenableColumns.SIZE)));
+            }
+            return null;
+        });
+
+        assertLatency("query", latencies);
+    }
+
+    @Test
+    public void concurrentOpenFile_returnsContentWithoutLeaks() throws Exception {
+        Set<Thread> threadsBefore = liveThreads();
+        int fdsBefore = openFileDescriptors();
+
+        long[] latencies = hammer(() -> {
+            ParcelFileDescriptor pfd = provider.openFile(URI, "r");
+            assertNotNull(pfd);
+            try (InputStream inputStream = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+                assertArrayEquals(EXPECTED_CONTENT, drain(inputStream));
+            }
+            return null;
+        });
+
+        assertLatency("openFile", latencies);
+        assertNoLeakedThreads(threadsBefore);
+        if (fdsBefore >= 0) {
+            // Allow a little slack for descriptors opened by the JVM itself (class loading, jars)
+            int fdsAfter = openFileDescriptors();
+            assertTrue("leaked file descriptors: before=" + fdsBefore + " after=" + fdsAfter,
+                    fdsAfter - fdsBefore < 16);
+        }
+    }
+
+    /**
+     * Runs the call {@link #CALLS_PER_THREAD} times on each of {@link #THREADS} threads, all
+     * released at once, and returns the sorted per-call latencies in nanoseconds.
+     */
+    private long[] hammer(Callable<Void> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long[] latencies = new long[CALLS_PER_THREAD];
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        long begin = System.nanoTime();
+                        call.call();
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                    return latencies;
+                }));
+            }
+            start.countDown();
+
+            long[] all = new long[THREADS * CALLS_PER_THREAD];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] latencies = future.get(60, TimeUnit.SECONDS);
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            Arrays.sort(all);
+            return all;
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void assertLatency(String name, long[] sorted) {
+        long p50 = percentile(sorted, 50);
+        long p99 = percentile(sorted, 99);
+        System.out.println(String.format("[AttackProvider] %s: calls=%d p50=%dus p99=%dus max=%dus",
+                name, sorted.length, p50 / 1000, p99 / 1000, sorted[sorted.length - 1] / 1000));
+        if (MAX_P99_MS >= 0) {
+            assertTrue(name + " p99 latency too high: " + p99 / 1000 + "us",
+                    p99 < TimeUnit.MILLISECONDS.toNanos(MAX_P99_MS));
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static byte[] drain(InputStream inputStream) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static Set<Thread> liveThreads() {
+        return new HashSet<>(Thread.getAllStackTraces().keySet());
+    }
+
+    /**
+     * Waits for all threads started during the test to finish. The provider's pipe writer
+     * threads must terminate once their content has been written and the pipe was drained.
+     */
+    private static void assertNoLeakedThreads(Set<Thread> before) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        Set<Thread> leaked;
+        do {
+            leaked = liveThreads();
+            leaked.removeAll(before);
+            leaked.removeIf(thread -> !thread.isAlive() || thread.isDaemon());
+            if (leaked.isEmpty()) {
+                return;
+            }
+            Thread.sleep(50);
+        } while (System.currentTimeMillis() < deadline);
+        fail("leaked threads: " + leaked);
+    }
+
+    /**
+     * Returns the number of open file descriptors of this process, or -1 if it cannot be determined.
+     */
+    private static int openFileDescriptors() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds != null ? fds.length : -1;
+    }
+}
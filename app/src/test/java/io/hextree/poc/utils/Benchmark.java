@@ -0,0 +1,132 @@
+package io.hextree.poc.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minimal JMH-style benchmark harness for local (JVM) unit tests.
+ * <p>
+ * Each benchmark is run for a number of warmup iterations, followed by measured iterations.
+ * Every iteration invokes the operation {@code opsPerIteration} times and records the
+ * average time per operation. Results are collected and written as JSON into the directory
+ * given by the {@code benchmark.outputDir} system property (set by the Gradle build to
+ * {@code app/build/benchmark-results}), so runs can be compared to track regressions.
+ * </p>
+ */
+public class Benchmark {
+
+    /**
+     * An operation to be measured. May throw, any exception fails the benchmark.
+     */
+    public interface Op {
+        void run() throws Exception;
+    }
+
+    private final String suite;
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final int opsPerIteration;
+    private final List<String> results = new ArrayList<>();
+
+    /**
+     * Prevents the JIT from eliminating the measured work as dead code.
+     */
+    public static volatile Object blackhole;
+
+    /**
+     * Creates a new benchmark suite.
+     *
+     * @param suite             the name of the suite, used as the JSON file name
+     * @param warmupIterations  number of iterations to run before measuring
+     * @param measureIterations number of measured iterations
+     * @param opsPerIteration   number of operations invoked per iteration
+     */
+    public Benchmark(String suite, int warmupIterations, int measureIterations, int opsPerIteration) {
+        this.suite = suite;
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.opsPerIteration = opsPerIteration;
+    }
+
+    /**
+     * Runs a single benchmark and records its result.
+     *
+     * @param name the name of the benchmark, e.g. "dumpIntent" or "writeFile[64k]"
+     * @param op   the operation to measure
+     * @throws Exception if the operation throws
+     */
+    public void run(String name, Op op) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            for (int j = 0; j < opsPerIteration; j++) {
+                op.run();
+            }
+        }
+
+        long[] nsPerOp = new long[measureIterations];
+        for (int i = 0; i < measureIterations; i++) {
+            long start = System.nanoTime();
+            for (int j = 0; j < opsPerIteration; j++) {
+                op.run();
+            }
+            nsPerOp[i] = (System.nanoTime() - start) / opsPerIteration;
+        }
+        Arrays.sort(nsPerOp);
+
+        long sum = 0;
+        for (long ns : nsPerOp) {
+            sum += ns;
+        }
+        double mean = (double) sum / nsPerOp.length;
+        double opsPerSec = mean > 0 ? 1_000_000_000d / mean : 0;
+
+        String result = String.format(Locale.ROOT,
+                "{\"name\": \"%s\", \"iterations\": %d, \"opsPerIteration\": %d, "
+                        + "\"meanNsPerOp\": %.1f, \"p50NsPerOp\": %d, \"p99NsPerOp\": %d, "
+                        + "\"minNsPerOp\": %d, \"maxNsPerOp\": %d, \"opsPerSec\": %.1f}",
+                name, measureIterations, opsPerIteration,
+                mean, percentile(nsPerOp, 50), percentile(nsPerOp, 99),
+                nsPerOp[0], nsPerOp[nsPerOp.length - 1], opsPerSec);
+        results.add(result);
+        System.out.println("[Benchmark] " + suite + "." + result);
+    }
+
+    /**
+     * Writes all recorded results as a JSON document to {@code <benchmark.outputDir>/<suite>.json}.
+     *
+     * @return the written file
+     * @throws IOException if the file cannot be written
+     */
+    public File writeJson() throws IOException {
+        File outputDir = new File(System.getProperty("benchmark.outputDir", "build/benchmark-results"));
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"suite\": \"").append(suite).append("\",\n");
+        sb.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+        sb.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            sb.append("    ").append(results.get(i));
+            sb.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        sb.append("  ]\n}\n");
+
+        File outputFile = new File(outputDir, suite + ".json");
+        try (OutputStream outputStream = new FileOutputStream(outputFile)) {
+            outputStream.write(sb.toString().getBytes());
+        }
+        return outputFile;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,157 @@
+package io.hextree.poc.utils;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DumpDiff}, executed with Robolectric.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class DumpDiffTest {
+
+    /**
+     * A target provider that rejects every URI, like many real providers do.
+     */
+    public static class ThrowingProvider extends ContentProvider {
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public ParcelFileDescriptor openFile(Uri uri, String mode) {
+            throw new IllegalArgumentException("Unknown URI " + uri);
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            return null;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            return 0;
+        }
+    }
+
+    private static File writeFile(Context context, String fname, byte[] content) throws IOException {
+        File file = new File(context.getFilesDir(), fname);
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    public void hashAndDiff_reportsOnlyChangedChunks() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        byte[] content = new byte[256 * 1024];
+        new Random(1).nextBytes(content);
+        Uri uri = Uri.fromFile(writeFile(context, "target.bin", content));
+        List<Uri> uris = Collections.singletonList(uri);
+
+        DumpDiff.Result first = DumpDiff.hashAndDiff(context, uris).get(0);
+        assertEquals(DumpDiff.Status.NEW, first.status);
+        assertEquals(content.length, first.size);
+        assertTrue(first.chunks.size() > 1);
+
+        DumpDiff.Result second = DumpDiff.hashAndDiff(context, uris).get(0);
+        assertEquals(DumpDiff.Status.UNCHANGED, second.status);
+        assertEquals(first.sha256, second.sha256);
+        assertTrue(second.changedChunks.isEmpty());
+
+        // Insert a few bytes in the middle, only the chunks around it must change
+        byte[] modified = new byte[content.length + 3];
+        System.arraycopy(content, 0, modified, 0, 100_000);
+        System.arraycopy(content, 100_000, modified, 100_003, content.length - 100_000);
+        writeFile(context, "target.bin", modified);
+
+        DumpDiff.Result third = DumpDiff.hashAndDiff(context, uris).get(0);
+        assertEquals(DumpDiff.Status.CHANGED, third.status);
+        assertFalse(third.changedChunks.isEmpty());
+        assertTrue(third.changedChunks.size() <= 2);
+        assertTrue(third.changedChunks.size() < third.chunks.size());
+
+        // Chunks of the previous version that are no longer referenced were removed from the store
+        Set<String> referenced = new HashSet<>();
+        for (DumpDiff.Chunk chunk : third.chunks) {
+            referenced.add(chunk.sha256);
+        }
+        String[] stored = new File(context.getFilesDir(), DumpDiff.DUMP_DIR + "/chunks").list();
+        assertNotNull(stored);
+        assertEquals(referenced, new HashSet<>(Arrays.asList(stored)));
+    }
+
+    @Test
+    public void hashAndDiff_throwingProviderFailsOnlyThatFile() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        Robolectric.setupContentProvider(ThrowingProvider.class, "io.hextree.throwing");
+        Uri good = Uri.fromFile(writeFile(context, "good.txt", "good".getBytes()));
+        Uri bad = Uri.parse("content://io.hextree.throwing/secret.txt");
+
+        List<DumpDiff.Result> results = DumpDiff.hashAndDiff(context, Arrays.asList(good, bad));
+
+        assertEquals(DumpDiff.Status.NEW, results.get(0).status);
+        assertEquals(DumpDiff.Status.FAILED, results.get(1).status);
+        assertEquals(DumpDiff.Status.UNCHANGED,
+                DumpDiff.hashAndDiff(context, Collections.singletonList(good)).get(0).status);
+    }
+
+    @Test
+    public void hashAndDiff_parallelFilesAndFailures() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        Uri a = Uri.fromFile(writeFile(context, "a.txt", "aaaa".getBytes()));
+        Uri b = Uri.fromFile(writeFile(context, "b.txt", "bbbb".getBytes()));
+        Uri missing = Uri.fromFile(new File(context.getFilesDir(), "missing.txt"));
+
+        List<DumpDiff.Result> results = DumpDiff.hashAndDiff(context, Arrays.asList(a, b, missing));
+
+        assertEquals(3, results.size());
+        assertEquals(DumpDiff.Status.NEW, results.get(0).status);
+        assertEquals(DumpDiff.Status.NEW, results.get(1).status);
+        assertEquals(DumpDiff.Status.FAILED, results.get(2).status);
+        assertNotEquals(results.get(0).sha256, results.get(1).sha256);
+        assertTrue(new File(context.getFilesDir(), DumpDiff.DUMP_DIR + "/index.txt").exists());
+    }
+}
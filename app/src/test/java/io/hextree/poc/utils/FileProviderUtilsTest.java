@@ -0,0 +1,83 @@
+package io.hextree.poc.utils;
+
+import android.content.ClipData;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FileProviderUtils}, executed with Robolectric.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class FileProviderUtilsTest {
+
+    @Test
+    public void grantDirectory_packsAllFilesIntoOneIntent() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FilesUtil.writeFile(context, "share/a.txt", "a");
+        FilesUtil.writeFile(context, "share/b.txt", "b");
+        FilesUtil.writeFile(context, "share/sub dir/c.txt", "c");
+
+        Intent intent = FileProviderUtils.grantDirectory(context, "share", new Intent());
+
+        assertTrue((intent.getFlags() & Intent.FLAG_GRANT_READ_URI_PERMISSION) != 0);
+        ClipData clipData = intent.getClipData();
+        assertNotNull(clipData);
+        assertEquals(3, clipData.getItemCount());
+
+        Set<String> uris = new HashSet<>();
+        for (int i = 0; i < clipData.getItemCount(); i++) {
+            uris.add(clipData.getItemAt(i).getUri().toString());
+        }
+        assertTrue(uris.contains("content://io.hextree.fileprovider/files/share/a.txt"));
+        assertTrue(uris.contains("content://io.hextree.fileprovider/files/share/b.txt"));
+        assertTrue(uris.contains("content://io.hextree.fileprovider/files/share/sub%20dir/c.txt"));
+        assertNull(intent.getData());
+    }
+
+    @Test
+    public void grantDirectory_keepsIntentData() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FilesUtil.writeFile(context, "share_data/a.txt", "a");
+        Uri data = Uri.parse("https://example.com/");
+
+        Intent intent = FileProviderUtils.grantDirectory(context, "share_data", new Intent().setData(data));
+
+        assertEquals(data, intent.getData());
+        assertEquals(1, intent.getClipData().getItemCount());
+    }
+
+    @Test
+    public void getUrisForDirectory_sameFileSameUri() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FilesUtil.writeFile(context, "share_root/a.txt", "a");
+
+        List<Uri> viaDot = FileProviderUtils.getUrisForDirectory(context, "./share_root");
+        List<Uri> viaName = FileProviderUtils.getUrisForDirectory(context, "share_root");
+
+        assertEquals(viaDot, viaName);
+    }
+
+    @Test
+    public void getUrisForDirectory_missingDirectory() {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        List<Uri> uris = FileProviderUtils.getUrisForDirectory(context, "does_not_exist");
+
+        assertTrue(uris.isEmpty());
+    }
+}
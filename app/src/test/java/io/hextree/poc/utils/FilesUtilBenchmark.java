@@ -0,0 +1,61 @@
+package io.hextree.poc.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks for {@link FilesUtil} read, write and copy paths across file sizes,
+ * executed on the JVM with Robolectric.
+ * <p>
+ * The asset files {@code bench/file_<size>.txt} are generated by the {@code generateBenchmarkAssets}
+ * Gradle task, which is only registered with {@code -Pbenchmark}.
+ * </p>
+ * <p>
+ * Run with {@code ./gradlew testDebugUnitTest -Pbenchmark}, results are written to
+ * {@code app/build/benchmark-results/FilesUtilBenchmark.json}.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class FilesUtilBenchmark {
+
+    // Keep in sync with the sizes of generateBenchmarkAssets in app/build.gradle.kts
+    private static final int[] SIZES = {64, 4 * 1024, 64 * 1024, 1024 * 1024};
+
+    @Test
+    public void benchmarkFilesUtil() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        Benchmark benchmark = new Benchmark("FilesUtilBenchmark", 3, 10, 20);
+        for (int size : SIZES) {
+            String content = makeContent(size);
+            String fname = "bench/file_" + size + ".txt";
+
+            benchmark.run("writeFile[" + size + "]", () -> FilesUtil.writeFile(context, fname, content));
+            benchmark.run("readInternalFile[" + size + "]", () -> Benchmark.blackhole = FilesUtil.readInternalFile(context, fname));
+            benchmark.run("readAssetFile[" + size + "]", () -> Benchmark.blackhole = FilesUtil.readAssetFile(context, fname));
+            benchmark.run("copyFileFromAssetToInternal[" + size + "]", () -> Benchmark.blackhole = FilesUtil.copyFileFromAssetToInternal(context, fname, fname));
+            FilesUtil.deleteFileFromInternal(context, fname);
+        }
+
+        benchmark.writeJson();
+    }
+
+    private static String makeContent(int size) {
+        // Lines of 63 characters plus a newline, like a typical text file
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'A');
+        for (int i = 63; i < size; i += 64) {
+            chars[i] = '\n';
+        }
+        return new String(chars);
+    }
+}
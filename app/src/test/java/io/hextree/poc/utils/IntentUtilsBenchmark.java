@@ -0,0 +1,56 @@
+package io.hextree.poc.utils;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+/**
+ * Benchmarks for {@link IntentUtils}, executed on the JVM with Robolectric.
+ * <p>
+ * Run with {@code ./gradlew testDebugUnitTest -Pbenchmark}, results are written to
+ * {@code app/build/benchmark-results/IntentUtilsBenchmark.json}.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34)
+public class IntentUtilsBenchmark {
+
+    @Test
+    public void benchmarkIntentUtils() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        Bundle nested = new Bundle();
+        nested.putString("token", "secret");
+        nested.putInt("id", 1337);
+
+        Intent inner = new Intent("io.hextree.INNER");
+        inner.putExtra("bundle", nested);
+
+        Intent intent = new Intent(Intent.ACTION_VIEW);
+        intent.addCategory(Intent.CATEGORY_DEFAULT);
+        intent.setData(Uri.parse("content://io.hextree.attackprovider/example.txt"));
+        intent.setComponent(new ComponentName("io.hextree.poc", "io.hextree.poc.MainActivity"));
+        intent.setFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
+        intent.putExtra("string", "value");
+        intent.putExtra("intent", inner);
+        intent.putExtra("bundle", nested);
+
+        int flags = Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION
+                | Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK;
+
+        Benchmark benchmark = new Benchmark("IntentUtilsBenchmark", 5, 20, 1_000);
+        benchmark.run("dumpIntent", () -> Benchmark.blackhole = IntentUtils.dumpIntent(context, intent));
+        benchmark.run("dumpBundle", () -> Benchmark.blackhole = IntentUtils.dumpBundle(nested));
+        benchmark.run("getFlagsString", () -> Benchmark.blackhole = IntentUtils.getFlagsString(flags));
+        benchmark.writeJson();
+    }
+}
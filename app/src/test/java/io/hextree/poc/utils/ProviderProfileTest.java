@@ -0,0 +1,51 @@
+package io.hextree.poc.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for parsing a {@link ProviderProfile}.
+ */
+public class ProviderProfileTest {
+
+    private static ProviderProfile parse(String profile) throws IOException {
+        return ProviderProfile.parse(new ByteArrayInputStream(profile.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parse_allKeys() throws IOException {
+        ProviderProfile profile = parse("display_name=../evil.txt\nsize=42\ncontent=line1\\nline2\n");
+
+        assertEquals("../evil.txt", profile.getDisplayName());
+        assertEquals(42, profile.getSize());
+        assertArrayEquals("line1\nline2".getBytes(StandardCharsets.UTF_8), profile.getContent());
+        assertArrayEquals(new Object[]{"../evil.txt", 42L}, profile.getRow());
+    }
+
+    @Test
+    public void parse_sizeDefaultsToContentLength() throws IOException {
+        ProviderProfile profile = parse("content=12345678\n");
+
+        assertEquals(ProviderProfile.DEFAULT.getDisplayName(), profile.getDisplayName());
+        assertEquals(8, profile.getSize());
+    }
+
+    @Test
+    public void parse_missingContentKeepsDefault() throws IOException {
+        ProviderProfile profile = parse("display_name=../evil.txt\n");
+
+        assertEquals("../evil.txt", profile.getDisplayName());
+        assertArrayEquals(ProviderProfile.DEFAULT.getContent(), profile.getContent());
+        assertEquals(ProviderProfile.DEFAULT.getSize(), profile.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_invalidSize() throws IOException {
+        parse("size=large\n");
+    }
+}